@@ -0,0 +1,8 @@
+package com.gossipmesh.core;
+
+import java.net.Inet4Address;
+
+public interface EndpointFactory<T> {
+    T create(Inet4Address address, short port) throws Exception;
+    void destroy(T endpoint);
+}
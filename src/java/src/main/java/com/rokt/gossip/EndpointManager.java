@@ -0,0 +1,295 @@
+package com.gossipmesh.core;
+
+import java.io.Closeable;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Keeps a connected endpoint for each live member providing a service. Register it with
+// `Gossiper.addListener`; membership changes are handed straight over to the manager's own thread, so
+// connecting and disconnecting never holds up the gossip thread.
+//
+//  - endpoints are created (on at most `maxConcurrentConnects` threads) as soon as a member is alive, but
+//    they're only handed out once the member has stayed alive for `stableMs`
+//  - SUSPICIOUS members keep their endpoints, and so do generation bumps that don't change the port
+//  - when a member dies its endpoint is closed after `closeGraceMs`, unless it comes back before then
+//  - every death adds `flapPenalty` to a member's penalty, which halves every `penaltyHalfLifeMs`. Members
+//    whose penalty goes over `suppressThreshold` aren't reconnected until it drops under `reuseThreshold`
+public class EndpointManager<T> implements Listener, Closeable {
+    private static final Logger LOGGER = Logger.getLogger(EndpointManager.class.getCanonicalName());
+    private final byte serviceByte;
+    private final EndpointFactory<T> factory;
+    private final EndpointManagerOptions options;
+    private final Map<MemberAddress, Entry> entries;
+    private final ScheduledThreadPoolExecutor scheduler;
+    private final ExecutorService connector;
+    private final Random random;
+    private volatile List<T> endpoints;
+    private ScheduledFuture<?> republish;
+
+    private class Entry {
+        final MemberAddress address;
+        short port;
+        boolean alive;
+        long aliveSince; // System.nanoTime, like all of our timings, so that clock steps can't upset them
+        T endpoint;
+        long attempt; // identifies the latest connection attempt, so that stale ones can be thrown away
+        boolean connecting;
+        double penalty;
+        long penaltyUpdated;
+        boolean suppressed;
+        ScheduledFuture<?> closing;
+
+        Entry(MemberAddress address) {
+            this.address = address;
+        }
+
+        void decayPenalty(long now) {
+            penalty *= Math.pow(0.5, (double) (now - penaltyUpdated) / TimeUnit.MILLISECONDS.toNanos(options.getPenaltyHalfLifeMs()));
+            penaltyUpdated = now;
+        }
+    }
+
+    public EndpointManager(int serviceByte, EndpointFactory<T> factory, EndpointManagerOptions options) {
+        this.serviceByte = (byte) serviceByte;
+        this.factory = factory;
+        this.options = options;
+        this.entries = new HashMap<>();
+        this.scheduler = new ScheduledThreadPoolExecutor(1);
+        this.scheduler.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        this.connector = Executors.newFixedThreadPool(options.getMaxConcurrentConnects());
+        this.random = new Random();
+        this.endpoints = Collections.emptyList();
+    }
+
+    private Runnable loggingExceptions(Runnable f) {
+        return () -> {
+            try {
+                f.run();
+            } catch (Exception ex) {
+                LOGGER.log(Level.SEVERE, "Exception thrown in task", ex);
+            }
+        };
+    }
+
+    public List<T> getEndpoints() {
+        return endpoints;
+    }
+
+    public T getEndpoint() {
+        List<T> endpoints = this.endpoints;
+        if (endpoints.isEmpty()) {
+            throw new IllegalStateException("No endpoints available to handle request");
+        }
+        return endpoints.get(ThreadLocalRandom.current().nextInt(endpoints.size()));
+    }
+
+    // hands a task over to the manager's thread, returning false if we've been closed
+    private boolean submit(Runnable task) {
+        try {
+            this.scheduler.execute(loggingExceptions(task));
+            return true;
+        } catch (RejectedExecutionException ex) {
+            return false;
+        }
+    }
+
+    @Override
+    public void accept(MemberAddress from, MemberAddress address, Member newMember, Member oldMember) {
+        submit(() -> update(address, newMember)); // don't throw into the gossip thread just because we've been closed
+    }
+
+    private boolean provides(Member member) {
+        return member != null
+                && member.serviceByte == serviceByte
+                && (member.state == MemberState.ALIVE || member.state == MemberState.SUSPICIOUS);
+    }
+
+    private void update(MemberAddress address, Member member) {
+        long now = System.nanoTime();
+        Entry entry = this.entries.get(address);
+        if (provides(member)) {
+            if (entry == null) {
+                entry = new Entry(address);
+                entry.port = member.servicePort;
+                entry.penaltyUpdated = now;
+                this.entries.put(address, entry);
+            } else if (entry.port != member.servicePort) {
+                retire(entry); // it's moved, so the endpoint we have is no use any more
+                entry.port = member.servicePort;
+            }
+            if (!entry.alive) {
+                entry.alive = true;
+                entry.aliveSince = now;
+                if (entry.closing != null) {
+                    entry.closing.cancel(false); // it came back in time, we can keep using the old endpoint
+                    entry.closing = null;
+                }
+                publish(); // which makes sure that we publish again once it's stable
+            }
+            reevaluate(entry);
+        } else if (entry != null) {
+            if (entry.alive) {
+                entry.alive = false;
+                entry.decayPenalty(now);
+                entry.penalty += options.getFlapPenalty();
+                if (entry.penalty > options.getSuppressThreshold()) {
+                    entry.suppressed = true;
+                }
+                Entry closing = entry;
+                entry.closing = this.scheduler.schedule(loggingExceptions(() -> {
+                    closing.closing = null;
+                    retire(closing);
+                    forgetIfUnused(closing);
+                }), options.getCloseGraceMs(), TimeUnit.MILLISECONDS);
+            }
+            if (member == null) {
+                // it's gone from the membership, so nothing will ever bring it back
+                entry.suppressed = false;
+                forgetIfUnused(entry);
+            }
+            publish();
+        }
+    }
+
+    private void forgetIfUnused(Entry entry) {
+        if (!entry.alive && entry.closing == null && !entry.suppressed && entry.endpoint == null) {
+            this.entries.remove(entry.address, entry);
+        }
+    }
+
+    // make sure that a live, unsuppressed member has an endpoint, or is getting one
+    private void reevaluate(Entry entry) {
+        if (this.entries.get(entry.address) != entry) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (entry.suppressed) {
+            entry.decayPenalty(now);
+            if (entry.penalty >= options.getReuseThreshold()) {
+                long wait = (long) Math.ceil(options.getPenaltyHalfLifeMs()
+                        * Math.log(entry.penalty / options.getReuseThreshold()) / Math.log(2));
+                this.scheduler.schedule(loggingExceptions(() -> reevaluate(entry)), Math.max(1, wait), TimeUnit.MILLISECONDS);
+                return;
+            }
+            entry.suppressed = false;
+            if (!entry.alive) {
+                forgetIfUnused(entry);
+                return;
+            }
+            publish(); // in case it kept its endpoint while it was suppressed
+        }
+        if (entry.alive && entry.endpoint == null && !entry.connecting) {
+            connect(entry);
+        }
+    }
+
+    private void connect(Entry entry) {
+        long attempt = ++entry.attempt;
+        short port = entry.port;
+        entry.connecting = true;
+        Runnable task = () -> {
+            if (this.scheduler.isShutdown()) {
+                return; // we were closed before we got round to it
+            }
+            T endpoint;
+            try {
+                endpoint = factory.create(entry.address.address, port);
+            } catch (Exception ex) {
+                LOGGER.log(Level.WARNING, "Exception thrown while connecting to " + entry.address, ex);
+                submit(() -> {
+                    if (entry.attempt == attempt) {
+                        entry.connecting = false;
+                        this.scheduler.schedule(loggingExceptions(() -> reevaluate(entry)), options.getConnectRetryMs(), TimeUnit.MILLISECONDS);
+                    }
+                });
+                return;
+            }
+            if (!submit(() -> connected(entry, attempt, endpoint))) {
+                destroy(endpoint); // we were closed while it was connecting, so nobody else will
+            }
+        };
+        try {
+            this.connector.execute(task);
+        } catch (RejectedExecutionException ex) {
+            entry.connecting = false; // we're being closed
+        }
+    }
+
+    private void connected(Entry entry, long attempt, T endpoint) {
+        if (entry.attempt != attempt || this.entries.get(entry.address) != entry) {
+            destroy(endpoint); // we stopped wanting this while it was connecting
+            return;
+        }
+        entry.connecting = false;
+        entry.endpoint = endpoint;
+        if (entry.alive) {
+            publish();
+        } else if (entry.closing == null) {
+            retire(entry);
+            forgetIfUnused(entry);
+        }
+    }
+
+    private void retire(Entry entry) {
+        entry.attempt++; // any connection attempt that's still running is no longer wanted
+        entry.connecting = false;
+        T endpoint = entry.endpoint;
+        entry.endpoint = null;
+        if (endpoint != null) {
+            publish();
+            destroy(endpoint);
+        }
+    }
+
+    private void destroy(T endpoint) {
+        try {
+            factory.destroy(endpoint);
+        } catch (Exception ex) {
+            LOGGER.log(Level.WARNING, "Exception thrown while destroying an endpoint", ex);
+        }
+    }
+
+    private void publish() {
+        long now = System.nanoTime();
+        long stableNanos = TimeUnit.MILLISECONDS.toNanos(options.getStableMs());
+        long wait = Long.MAX_VALUE;
+        List<T> ready = new ArrayList<>();
+        for (Entry entry : this.entries.values()) {
+            if (!entry.alive || entry.suppressed) {
+                continue;
+            }
+            long remaining = entry.aliveSince + stableNanos - now;
+            if (remaining > 0) {
+                wait = Math.min(wait, remaining); // it'll need publishing once it's stable
+            } else if (entry.endpoint != null) {
+                ready.add(entry.endpoint);
+            }
+        }
+        Collections.shuffle(ready, this.random);
+        this.endpoints = Collections.unmodifiableList(ready);
+
+        if (this.republish != null) {
+            this.republish.cancel(false);
+            this.republish = null;
+        }
+        if (wait != Long.MAX_VALUE && !this.scheduler.isShutdown()) {
+            this.republish = this.scheduler.schedule(loggingExceptions(this::publish), wait, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    // Endpoints that are still being created when we're closed are destroyed as soon as they're ready
+    @Override
+    public void close() {
+        submit(() -> {
+            for (Entry entry : this.entries.values()) {
+                retire(entry);
+            }
+            this.entries.clear();
+            this.endpoints = Collections.emptyList();
+        });
+        this.scheduler.shutdown();
+        this.connector.shutdown();
+    }
+}
@@ -0,0 +1,31 @@
+package com.gossipmesh.core;
+
+public class EndpointManagerOptions {
+
+    private int maxConcurrentConnects = 4;
+    private int connectRetryMs = 1000;
+    private int stableMs = 1000;
+    private int closeGraceMs = 10000;
+    private double flapPenalty = 1000;
+    private double suppressThreshold = 3000;
+    private double reuseThreshold = 1000;
+    private int penaltyHalfLifeMs = 30000;
+
+    public int getMaxConcurrentConnects() { return maxConcurrentConnects; }
+    public int getConnectRetryMs() { return connectRetryMs; }
+    public int getStableMs() { return stableMs; }
+    public int getCloseGraceMs() { return closeGraceMs; }
+    public double getFlapPenalty() { return flapPenalty; }
+    public double getSuppressThreshold() { return suppressThreshold; }
+    public double getReuseThreshold() { return reuseThreshold; }
+    public int getPenaltyHalfLifeMs() { return penaltyHalfLifeMs; }
+
+    public void setMaxConcurrentConnects(int v) { maxConcurrentConnects = v; }
+    public void setConnectRetryMs(int v) { connectRetryMs = v; }
+    public void setStableMs(int v) { stableMs = v; }
+    public void setCloseGraceMs(int v) { closeGraceMs = v; }
+    public void setFlapPenalty(double v) { flapPenalty = v; }
+    public void setSuppressThreshold(double v) { suppressThreshold = v; }
+    public void setReuseThreshold(double v) { reuseThreshold = v; }
+    public void setPenaltyHalfLifeMs(int v) { penaltyHalfLifeMs = v; }
+}
@@ -3,12 +3,16 @@ package com.gossipmesh.core;
 import java.io.*;
 import java.net.*;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.BiPredicate;
 import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -16,14 +20,24 @@ public class Gossiper {
     private static final Logger LOGGER = Logger.getLogger(Gossiper.class.getCanonicalName());
     private final Map<MemberAddress, Member> members;
     private final Map<MemberAddress, ScheduledFuture> waiting;
+    private final Map<String, StateEntry> localState;
+    private final Map<MemberAddress, Map<String, StateEntry>> remoteState;
     private final byte serviceByte;
     private final short servicePort;
     private final GossiperOptions options;
     private final ScheduledExecutorService executor;
     private final DatagramSocket socket;
     private final HashMap<Object, Listener> listeners;
+    private final BlockingQueue<InboundMessage> priorityInbound;
+    private final BlockingQueue<InboundMessage> inbound;
+    private final AtomicLong droppedMessages;
+    private final PartialView view;
+    private final ProtocolTuner tuner;
+    private final TombstoneStore tombstones;
     private Thread listener;
     private byte generation;
+    private long stateVersion;
+    private long nextShuffleNanos;
 
     public Gossiper(int serviceByte, int servicePort, GossiperOptions options) throws IOException {
         this(new DatagramSocket(), serviceByte, servicePort, options);
@@ -36,12 +50,22 @@ public class Gossiper {
     public Gossiper(DatagramSocket socket, int serviceByte, int servicePort, GossiperOptions options) {
         this.members = new HashMap<>();
         this.waiting = new HashMap<>();
+        this.localState = new HashMap<>();
+        this.remoteState = new HashMap<>();
         this.serviceByte = (byte) serviceByte;
         this.servicePort = (short) servicePort;
         this.options = options;
         this.executor = new ScheduledThreadPoolExecutor(1);
         this.socket = socket;
         this.listeners = new HashMap<>();
+        this.priorityInbound = new ArrayBlockingQueue<>(options.getInboundQueueCapacity());
+        this.inbound = new ArrayBlockingQueue<>(options.getInboundQueueCapacity());
+        this.droppedMessages = new AtomicLong();
+        this.view = options.isPartialView()
+                ? new PartialView(options.getActiveViewSize(), options.getPassiveViewSize())
+                : null;
+        this.tuner = options.isAdaptive() ? new ProtocolTuner(options) : null;
+        this.tombstones = new TombstoneStore(options.getTombstoneCapacity(), options.getTombstoneRetransmits());
     }
 
     private Runnable loggingExceptions(Runnable f) {
@@ -55,34 +79,32 @@ public class Gossiper {
     }
 
     public int start() throws IOException {
-        this.executor.scheduleAtFixedRate(loggingExceptions(() -> {
-            try {
-                probe();
-            } catch (IOException ex) {
-                LOGGER.log(Level.SEVERE, "Exception thrown when trying to probe", ex);
-            }
-        }), 0, options.getProtocolPeriodMs(), TimeUnit.MILLISECONDS);
+        // anything that can fail goes first, so that we don't leave a half started gossiper probing away
         socket.setSoTimeout(500);
+        TrafficCapture capture = options.getCaptureFile() == null ? null : new TrafficCapture(options.getCaptureFile());
+        if (this.tuner == null) {
+            this.executor.scheduleAtFixedRate(loggingExceptions(this::tryProbe), 0, options.getProtocolPeriodMs(), TimeUnit.MILLISECONDS);
+        } else {
+            this.executor.execute(loggingExceptions(this::probeAndReschedule));
+        }
         this.listener = new Thread(() -> {
             byte[] buffer = new byte[508];
             while (!Thread.currentThread().isInterrupted()) {
                 try {
                     DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
                     socket.receive(packet);
+                    if (socket.isClosed()) {
+                        break; // we're being stopped, and whatever we got isn't a real message
+                    }
                     assert (packet.getOffset() == 0);
                     MemberAddress address = new MemberAddress(
                             (Inet4Address) packet.getAddress(),
                             (short) packet.getPort());
                     byte[] recvBuffer = Arrays.copyOf(packet.getData(), packet.getLength());
-                    this.executor.execute(loggingExceptions(() -> {
-                        try (InputStream is = new ByteArrayInputStream(recvBuffer);
-                             DataInputStream dis = new DataInputStream(is)) {
-                            handleMessage(address, dis);
-                        } catch (IOException ex) {
-                            LOGGER.log(Level.SEVERE, "IO Exception while handling a message from " + address, ex);
-                        }
-                    }));
-
+                    if (capture != null) {
+                        capture(capture, address, recvBuffer);
+                    }
+                    enqueue(new InboundMessage(address, recvBuffer));
                 } catch (SocketTimeoutException ex) {
                     // do nothing
                 } catch (IOException ex) {
@@ -91,17 +113,102 @@ public class Gossiper {
                     }
                 }
             }
+            if (capture != null) {
+                try {
+                    capture.close();
+                } catch (IOException ex) {
+                    LOGGER.log(Level.SEVERE, "IO Exception closing traffic capture", ex);
+                }
+            }
         });
         this.listener.setDaemon(true);
         this.listener.start();
         return socket.getLocalPort();
     }
 
+    private static void capture(TrafficCapture capture, MemberAddress address, byte[] data) {
+        try {
+            capture.write(address, data);
+        } catch (IOException ex) {
+            LOGGER.log(Level.SEVERE, "IO Exception writing to traffic capture", ex);
+        }
+    }
+
+    // Only called from the receive thread, so each queue has a single producer. Every message in the
+    // queues has exactly one pending task on the executor, which keeps the executor's own (unbounded)
+    // queue bounded by the capacity of these two.
+    private void enqueue(InboundMessage message) {
+        BlockingQueue<InboundMessage> queue = isFailureDetection(message.data) ? this.priorityInbound : this.inbound;
+        if (queue.offer(message)) {
+            this.executor.execute(loggingExceptions(this::handleNextMessage));
+        } else if (options.getInboundOverflowPolicy() == InboundOverflowPolicy.DROP_OLDEST) {
+            InboundMessage dropped = queue.poll();
+            queue.offer(message); // can't fail, we're the only producer and we just made space
+            if (dropped == null) {
+                // the executor emptied the queue in the meantime, so nothing is waiting for this message
+                this.executor.execute(loggingExceptions(this::handleNextMessage));
+            } else {
+                this.droppedMessages.incrementAndGet();
+            }
+        } else {
+            this.droppedMessages.incrementAndGet();
+        }
+    }
+
+    // acks are what stop us from suspecting our peers, so they skip ahead of everything else
+    private static boolean isFailureDetection(byte[] data) {
+        return data.length >= 2 && data[0] == 0 && (data[1] == 0x00 || data[1] == 0x06);
+    }
+
+    private void handleNextMessage() {
+        InboundMessage message = this.priorityInbound.poll();
+        if (message == null) {
+            message = this.inbound.poll();
+        }
+        if (message != null) {
+            handleDatagram(message.address, message.data);
+        }
+    }
+
+    // must be called on the gossip thread
+    void handleDatagram(MemberAddress address, byte[] data) {
+        MessageReceivedEvent event = new MessageReceivedEvent();
+        event.begin();
+        try (InputStream is = new ByteArrayInputStream(data);
+             DataInputStream dis = new DataInputStream(is)) {
+            int entries = handleMessage(address, dis);
+            if (event.shouldCommit()) {
+                event.type = data.length > 1 ? data[1] : -1;
+                event.peer = address.toString();
+                event.entries = entries;
+                event.bytes = data.length;
+                event.commit();
+            }
+        } catch (IOException ex) {
+            LOGGER.log(Level.SEVERE, "IO Exception while handling a message from " + address, ex);
+        }
+    }
+
+    // runs a task on the gossip thread, for tools (like TrafficReplay) that drive a gossiper that isn't started
+    ScheduledFuture<?> schedule(Runnable task, long delay, TimeUnit unit) {
+        return this.executor.schedule(loggingExceptions(task), delay, unit);
+    }
+
+    public long getDroppedMessages() {
+        return this.droppedMessages.get();
+    }
+
     private Iterable<MemberAddress> randomNodes() {
         return randomNodes((address, state) -> true);
     }
 
+    // with a partial view we only ever talk to the members in our active view
     private Iterable<MemberAddress> randomNodes(BiPredicate<MemberAddress, Member> matching) {
+        return randomMembers((address, state) -> (this.view == null || this.view.isActive(address))
+                && matching.test(address, state));
+    }
+
+    private Iterable<MemberAddress> randomMembers(BiPredicate<MemberAddress, Member> matching) {
         return () -> this.members.entrySet()
                 .stream()
                 .filter(x -> matching.test(x.getKey(), x.getValue()))
@@ -134,21 +241,126 @@ public class Gossiper {
         }
     }
 
+    private static class InboundMessage {
+        final MemberAddress address;
+        final byte[] data;
+
+        InboundMessage(MemberAddress address, byte[] data) {
+            this.address = address;
+            this.data = data;
+        }
+    }
+
     public void stop(long timeunit, TimeUnit unit) throws InterruptedException {
-        this.listener.interrupt(); // this thread should shut itself down within half a second at worst
+        if (this.listener != null) {
+            this.listener.interrupt(); // this thread should shut itself down within half a second at worst
+        }
         this.socket.close();
+        if (this.listener != null) {
+            this.listener.join(unit.toMillis(timeunit)); // so that it can finish writing any traffic capture
+        }
         this.executor.shutdownNow();
         this.executor.awaitTermination(timeunit, unit);
     }
 
+    private void tryProbe() {
+        TimerEvent event = new TimerEvent();
+        event.begin();
+        try {
+            probe();
+        } catch (IOException ex) {
+            LOGGER.log(Level.SEVERE, "Exception thrown when trying to probe", ex);
+        }
+        if (event.shouldCommit()) {
+            event.timer = "probe";
+            event.commit();
+        }
+    }
+
+    // the adaptive protocol period can change every time, so we can't use a fixed rate schedule
+    private void probeAndReschedule() {
+        try {
+            this.tuner.retune(this.members.size());
+            tryProbe();
+        } finally {
+            if (!this.executor.isShutdown()) {
+                this.executor.schedule(loggingExceptions(this::probeAndReschedule), this.tuner.getPeriodMs(), TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    private int fanoutFactor() {
+        return this.tuner == null ? options.getFanoutFactor() : this.tuner.getFanoutFactor();
+    }
+
+    private int numberOfIndirectEndPoints() {
+        return this.tuner == null ? options.getNumberOfIndirectEndPoints() : this.tuner.getNumberOfIndirectEndPoints();
+    }
+
+    private int stateRetransmits() {
+        return this.tuner == null ? options.getStateRetransmits() : this.tuner.getStateRetransmits();
+    }
+
     private void probe() throws IOException {
-        int i = options.getFanoutFactor();
+        pruneTombstones();
+        int i = fanoutFactor();
+        int sent = 0;
+        boolean pulled = false;
+        boolean shuffling = this.view != null && shuffleViews();
         for (MemberAddress address : randomNodes()) {
             if (--i < 0) {
                 break;
             }
-            LOGGER.log(Level.FINEST, "Performing direct ping on: " + address);
-            ping(address);
+            sent += ping(address, shuffling);
+            shuffling = false;
+            if (options.isStateGossip()) {
+                sent += sendState(address, entry -> entry.getValue().timesMentioned < stateRetransmits());
+                if (!pulled && hasState()) {
+                    sent += sendStateDigest(address);
+                    pulled = true;
+                }
+            }
+        }
+
+        // Dead members get one probe every period, so that members we wrongly declared dead (or that were on
+        // the other side of a partition) can refute it, and on top of that whatever probes the live members
+        // leave over, so that seeds we haven't reached yet keep being retried. That way a crowd of dead
+        // members can't slow down detecting live ones failing.
+        int j = Math.max(i, 1);
+        List<MemberAddress> dead = this.tombstones.addresses();
+        Collections.shuffle(dead);
+        for (MemberAddress address : dead) {
+            if (--j < 0) {
+                break;
+            }
+            sent += ping(address);
+        }
+        if (this.tuner != null) {
+            this.tuner.bytesSent(sent); // only what we send on our own account, not our replies to others
+        }
+    }
+
+    // Returns true if it's time to shuffle, in which case the next ping tells its receiver about our
+    // passive view. That's how members outside of everyone's active views keep being heard about.
+    private boolean shuffleViews() {
+        long now = System.nanoTime();
+        if (now - this.nextShuffleNanos < 0) {
+            return false;
+        }
+        this.nextShuffleNanos = now + TimeUnit.MILLISECONDS.toNanos(options.getShuffleIntervalMs());
+        PartialView.Swap swap = this.view.shuffle(this.members);
+        if (swap != null) {
+            if (swap.evicted != null) {
+                forget(swap.evicted);
+            }
+            updateMember(null, swap.address, m -> m == null ? swap.member : m.merge(swap.member));
+        }
+        return true;
+    }
+
+    private void pruneTombstones() {
+        for (Map.Entry<MemberAddress, Member> expired : this.tombstones.expire(System.nanoTime())) {
+            notifyListeners(null, expired.getKey(), null, expired.getValue());
         }
     }
 
@@ -175,18 +387,62 @@ public class Gossiper {
         }
     }
 
-    private void scheduleTask(MemberAddress address, Runnable command, int delay, TimeUnit units) {
+    private static void writeStateEntry(DataOutput output, MemberAddress owner, StateEntry entry) throws IOException {
+        if (owner == null) {
+            output.write(0); // it's the sender's own state
+        } else {
+            output.write(1);
+            writeAddress(output, owner);
+        }
+        output.writeLong(entry.version);
+        output.writeUTF(entry.key);
+        output.writeBoolean(entry.value != null);
+        if (entry.value != null) {
+            output.writeUTF(entry.value);
+        }
+    }
+
+    private void scheduleTask(MemberAddress address, String timer, Runnable command, int delay, TimeUnit units) {
         this.waiting.computeIfAbsent(address, a -> {
             ScheduledFuture<?>[] future = new ScheduledFuture<?>[1];
             future[0] = this.executor.schedule(loggingExceptions(() -> {
+                TimerEvent event = new TimerEvent();
+                event.begin();
                 this.waiting.remove(address, future[0]);
                 command.run();
+                if (event.shouldCommit()) {
+                    event.timer = timer;
+                    event.member = address.toString();
+                    event.commit();
+                }
             }), delay, TimeUnit.MILLISECONDS);
             return future[0];
         });
     }
 
-    private void sendMessage(MemberAddress address, MessageWriter<DataOutput> header) throws IOException {
+    // returns the number of bytes sent
+    private int sendPacket(MemberAddress address, byte[] buffer, int length, int entries) throws IOException {
+        MessageSentEvent event = new MessageSentEvent();
+        event.begin();
+        DatagramPacket packet = new DatagramPacket(buffer, length);
+        packet.setAddress(address.address);
+        packet.setPort(address.port & 0xFFFF);
+        socket.send(packet);
+        if (event.shouldCommit()) {
+            event.type = buffer[1];
+            event.peer = address.toString();
+            event.entries = entries;
+            event.bytes = length;
+            event.commit();
+        }
+        return length;
+    }
+
+    private int sendMessage(MemberAddress address, MessageWriter<DataOutput> header) throws IOException {
+        return sendMessage(address, header, false);
+    }
+
+    private int sendMessage(MemberAddress address, MessageWriter<DataOutput> header, boolean includePassive) throws IOException {
         byte[] outBuffer = new byte[508];
         int limit = 0;
         Set<MemberAddress> sending = new HashSet<>();
@@ -199,7 +455,7 @@ public class Gossiper {
             dos.write(this.serviceByte);
             dos.writeShort(this.servicePort);
 
-            Member receiver = this.members.get(address);
+            Member receiver = getMember(address);
             if (receiver == null) {
                 dos.write(MemberState.DEAD.ordinal());
                 dos.write(0);
@@ -211,7 +467,13 @@ public class Gossiper {
             limit = os.position();
 
             PriorityQueue<Map.Entry<MemberAddress, Member>> queue = new PriorityQueue<>(Comparator.comparingLong(a -> a.getValue().timesMentioned));
-            queue.addAll(this.members.entrySet());
+            for (Map.Entry<MemberAddress, Member> entry : this.members.entrySet()) {
+                // with a partial view we only gossip about our passive view when we're shuffling
+                if (this.view == null || includePassive || !this.view.isPassive(entry.getKey())) {
+                    queue.add(entry);
+                }
+            }
+            queue.addAll(this.tombstones.disseminating());
             for (Map.Entry<MemberAddress, Member> entry : queue) {
                 if (Objects.equals(entry.getKey(), address)) {
                     continue;
@@ -224,14 +486,130 @@ public class Gossiper {
             // ignore this, we don't actually care
         }
 
-        DatagramPacket packet = new DatagramPacket(outBuffer, limit);
-        packet.setAddress(address.address);
-        packet.setPort(address.port & 0xFFFF);
-        socket.send(packet);
+        int sent = sendPacket(address, outBuffer, limit, sending.size());
 
-        for (MemberAddress sent : sending) {
-            this.members.get(sent).timesMentioned++;
+        for (MemberAddress mentioned : sending) {
+            Member member = this.members.get(mentioned);
+            if (member == null) {
+                this.tombstones.mentioned(mentioned);
+            } else {
+                member.timesMentioned++;
+            }
         }
+        return sent;
+    }
+
+    private boolean hasState() {
+        return !this.localState.isEmpty() || !this.remoteState.isEmpty();
+    }
+
+    private int stateBudget() {
+        return Math.min(options.getStateBytesPerMessage(), 508);
+    }
+
+    // own state is keyed by a null owner, because we don't know which address the receiver knows us by
+    private int sendState(MemberAddress address, Predicate<Map.Entry<MemberAddress, StateEntry>> matching) throws IOException {
+        List<Map.Entry<MemberAddress, StateEntry>> candidates = new ArrayList<>();
+        for (StateEntry entry : this.localState.values()) {
+            candidates.add(new AbstractMap.SimpleImmutableEntry<>(null, entry));
+        }
+        for (Map.Entry<MemberAddress, Map<String, StateEntry>> owner : this.remoteState.entrySet()) {
+            if (Objects.equals(owner.getKey(), address)) {
+                continue; // they know their own state better than we do
+            }
+            for (StateEntry entry : owner.getValue().values()) {
+                candidates.add(new AbstractMap.SimpleImmutableEntry<>(owner.getKey(), entry));
+            }
+        }
+        candidates.removeIf(matching.negate());
+        if (candidates.isEmpty()) {
+            return 0;
+        }
+        candidates.sort(Comparator.comparingLong(a -> a.getValue().timesMentioned));
+
+        byte[] outBuffer = new byte[stateBudget()];
+        int limit = 0;
+        List<StateEntry> sending = new ArrayList<>();
+        try (FiniteByteArrayOutputStream os = new FiniteByteArrayOutputStream(outBuffer);
+             DataOutputStream dos = new DataOutputStream(os)) {
+            dos.write(0); // protocol version
+            dos.write(0x08);
+            for (Map.Entry<MemberAddress, StateEntry> entry : candidates) {
+                writeStateEntry(dos, entry.getKey(), entry.getValue()); // this will eventually throw an exception
+                limit = os.position();
+                sending.add(entry.getValue());
+            }
+        } catch (IOException ex) {
+            // ignore this, we've just run out of budget
+        }
+        if (sending.isEmpty()) {
+            return 0;
+        }
+
+        int sent = sendPacket(address, outBuffer, limit, sending.size());
+
+        for (StateEntry mentioned : sending) {
+            mentioned.timesMentioned++;
+        }
+        return sent;
+    }
+
+    private int sendStateDigest(MemberAddress address) throws IOException {
+        byte[] outBuffer = new byte[stateBudget()];
+        int limit = 0;
+        int digested = 0;
+        List<MemberAddress> owners = new ArrayList<>(this.remoteState.keySet());
+        Collections.shuffle(owners); // so a truncated digest still covers everyone eventually
+        try (FiniteByteArrayOutputStream os = new FiniteByteArrayOutputStream(outBuffer);
+             DataOutputStream dos = new DataOutputStream(os)) {
+            dos.write(0); // protocol version
+            dos.write(0x09);
+            dos.writeInt(StateEntry.checksum(this.remoteState.get(address)));
+            limit = os.position();
+            for (MemberAddress owner : owners) {
+                if (Objects.equals(owner, address)) {
+                    continue;
+                }
+                writeAddress(dos, owner); // this will eventually throw an exception
+                dos.writeInt(StateEntry.checksum(this.remoteState.get(owner)));
+                limit = os.position();
+                digested++;
+            }
+        } catch (IOException ex) {
+            // ignore this, we've just run out of budget
+        }
+
+        return sendPacket(address, outBuffer, limit, digested);
+    }
+
+    public void setState(String key, String value) {
+        putState(key, Objects.requireNonNull(value));
+    }
+
+    public void removeState(String key) {
+        putState(key, null);
+    }
+
+    private void putState(String key, String value) {
+        if (!options.isStateGossip()) {
+            throw new IllegalStateException("State gossip hasn't been enabled in the gossiper's options");
+        }
+        StateEntry entry = new StateEntry(Objects.requireNonNull(key), value, 0);
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (DataOutputStream dos = new DataOutputStream(bos)) {
+            writeStateEntry(dos, null, entry);
+        } catch (IOException ex) {
+            throw new IllegalArgumentException("State entry for " + key + " can't be encoded", ex);
+        }
+        // two bytes of header, plus six more if someone else is forwarding it on our behalf
+        if (bos.size() + 8 > stateBudget()) {
+            throw new IllegalArgumentException("State entry for " + key + " doesn't fit in " + stateBudget() + " bytes");
+        }
+        this.executor.execute(loggingExceptions(() -> {
+            // versions are seeded from the clock, so a restarted node's writes beat the ones it made before
+            this.stateVersion = Math.max(this.stateVersion + 1, System.currentTimeMillis());
+            this.localState.put(key, new StateEntry(key, value, this.stateVersion));
+        }));
     }
 
     public void connectTo(Inet4Address address, int port) {
@@ -244,11 +622,19 @@ public class Gossiper {
         }));
     }
 
-    private void ping(MemberAddress address) throws IOException {
-        sendMessage(address, dos -> dos.write(0x01));
+    private int ping(MemberAddress address) throws IOException {
+        return ping(address, false);
+    }
+
+    // returns the number of bytes sent
+    private int ping(MemberAddress address, boolean includePassive) throws IOException {
+        int sent = sendMessage(address, dos -> dos.write(0x01), includePassive);
+        if (this.tuner != null && this.members.containsKey(address)) {
+            this.tuner.pingSent(); // dead members and seeds we haven't reached can't ack, so they'd look like loss
+        }
         Member member = updateMember(null, address, m -> m == null ? new Member(MemberState.DEAD, (byte) 0, (byte) 0, (byte) 0) : m);
         if (member != null) {
-            scheduleTask(address, () -> {
+            scheduleTask(address, "ping timeout", () -> {
                 try {
                     indirectPing(address, member);
                 } catch (IOException ex) {
@@ -256,52 +642,56 @@ public class Gossiper {
                 }
             }, options.getPingTimeoutMs(), TimeUnit.MILLISECONDS);
         }
+        return sent;
     }
 
     private void indirectPing(MemberAddress address, Member member) throws IOException {
         updateMember(null, address, m -> m == null ? null : m.merge(member.withState(MemberState.SUSPICIOUS)));
-        int i = options.getNumberOfIndirectEndPoints();
+        int i = numberOfIndirectEndPoints();
+        int sent = 0;
         for (MemberAddress relay : randomNodes((a, m) -> !Objects.equals(a, address))) {
             if (--i < 0) {
                 break;
             }
-            sendMessage(relay, dos -> {
+            sent += sendMessage(relay, dos -> {
                 dos.write(0x05);
                 writeAddress(dos, address);
             });
         }
-        scheduleTask(address, () -> {
-            Member dead = updateMember(null, address, m -> m == null ? null : m.merge(member.withState(MemberState.DEAD)));
-            scheduleTask(address, () -> {
-                // only prune the state if it hasn't changed
-                updateMember(null, address, m -> Objects.equals(m, dead) ? null : m);
-            }, options.getDeathTimeoutMs(), TimeUnit.MILLISECONDS);
+        if (this.tuner != null) {
+            this.tuner.bytesSent(sent);
+        }
+        scheduleTask(address, "indirect ping timeout", () -> {
+            // the tombstone takes care of pruning this member once the death timeout passes
+            updateMember(null, address, m -> m == null ? null : m.merge(member.withState(MemberState.DEAD)));
         }, options.getIndirectPingTimeoutMs(), TimeUnit.MILLISECONDS);
     }
 
-    private void handleMessage(MemberAddress address, DataInput input) throws IOException {
+    // returns the number of entries handled
+    private int handleMessage(MemberAddress address, DataInput input) throws IOException {
         byte version = input.readByte();
         if (version == 0) {
             byte b = input.readByte();
             switch (b) {
                 case 0x00: // direct ack
-                    handleDirectAck(address, input);
-                    break;
+                    return handleDirectAck(address, input);
                 case 0x01: // direct ping
-                    handleDirectPing(address, input);
-                    break;
+                    return handleDirectPing(address, input);
                 case 0x04: // ack request
                 case 0x05: // ping request
-                    handleRequest(address, input, (byte) (b & 0x01));
-                    break;
+                    return handleRequest(address, input, (byte) (b & 0x01));
                 case 0x06: // forwarded ack
                 case 0x07: // forwarded ping
-                    handleForwarded(address, input, (byte) (b & 0x01));
-                    break;
+                    return handleForwarded(address, input, (byte) (b & 0x01));
+                case 0x08: // state
+                    return options.isStateGossip() ? handleState(address, input) : 0;
+                case 0x09: // state digest
+                    return options.isStateGossip() ? handleStateDigest(address, input) : 0;
             }
         } else {
             LOGGER.log(Level.SEVERE, "Unknown protocol version received: " + version);
         }
+        return 0;
     }
 
     private void removeAndCancel(MemberAddress address) {
@@ -311,32 +701,37 @@ public class Gossiper {
         }
     }
 
-    private void handleDirectAck(MemberAddress address, DataInput input) throws IOException {
+    private int handleDirectAck(MemberAddress address, DataInput input) throws IOException {
         removeAndCancel(address); // if we were waiting to hear from them - here they are!
-        handleEvents(address, input);
+        if (this.tuner != null && this.members.containsKey(address)) {
+            this.tuner.ackReceived();
+        }
+        return handleEvents(address, input);
     }
 
-    private void handleDirectPing(MemberAddress address, DataInput input) throws IOException {
+    private int handleDirectPing(MemberAddress address, DataInput input) throws IOException {
         removeAndCancel(address); // if we were waiting to hear from them - here they are!
-        handleEvents(address, input);
+        int entries = handleEvents(address, input);
         sendMessage(address, dos -> dos.write(0x00));
+        return entries;
     }
 
-    private void handleRequest(MemberAddress address, DataInput input, byte b) throws IOException {
+    private int handleRequest(MemberAddress address, DataInput input, byte b) throws IOException {
         removeAndCancel(address); // if we were waiting to hear from them - here they are!
         MemberAddress destination = parseAddress(input);
-        handleEvents(address, input);
+        int entries = handleEvents(address, input);
 
         sendMessage(address, dos -> {
             dos.write(b | 0x06);
             writeAddress(dos, destination);
         });
+        return entries;
     }
 
-    private void handleForwarded(MemberAddress address, DataInput input, byte b) throws IOException {
+    private int handleForwarded(MemberAddress address, DataInput input, byte b) throws IOException {
         removeAndCancel(address); // if we were waiting to hear from them - here they are!
         MemberAddress source = parseAddress(input);
-        handleEvents(address, input);
+        int entries = handleEvents(address, input);
 
         switch (b) {
             case 0x00:
@@ -349,23 +744,72 @@ public class Gossiper {
                 });
                 break;
         }
+        return entries;
+    }
+
+    private Member getMember(MemberAddress address) {
+        Member member = this.members.get(address);
+        return member == null ? this.tombstones.get(address) : member;
+    }
+
+    private static boolean isDead(Member member) {
+        return member.state == MemberState.DEAD || member.state == MemberState.LEFT;
     }
 
     private Member updateMember(MemberAddress from, MemberAddress address, Function<Member, Member> update) {
-        Member oldMember = this.members.get(address);
-        Member newMember = update.apply(oldMember);
+        return updateMember(from, from, address, update);
+    }
+
+    // `reporter` is who we record in the transition event. It differs from `from` when a member tells us
+    // about itself: listeners have always been told that with a null `from`.
+    private Member updateMember(MemberAddress from, MemberAddress reporter, MemberAddress address, Function<Member, Member> update) {
+        Member oldMember = getMember(address);
+        Member known = oldMember == null && this.view != null ? this.view.forgotten(address) : oldMember;
+        Member newMember = update.apply(known);
         if (!Objects.equals(oldMember, newMember)) {
+            if (this.view != null && !this.view.update(address, newMember)) {
+                if (oldMember == null) {
+                    return null; // there's no room for them in our views until we next shuffle
+                }
+                // it's a tombstone coming back to life, which has to beat strangers to a place in our views
+                MemberAddress evicted = this.view.admit(address, this.members);
+                if (evicted != null) {
+                    forget(evicted);
+                }
+            }
+            Map.Entry<MemberAddress, Member> evicted = null;
             if (newMember == null) {
                 this.members.remove(address);
+                this.tombstones.remove(address);
+                this.remoteState.remove(address);
+            } else if (isDead(newMember)) {
+                this.members.remove(address);
+                this.remoteState.remove(address);
+                evicted = this.tombstones.put(address, newMember, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(options.getDeathTimeoutMs()));
             } else {
+                this.tombstones.remove(address);
                 this.members.put(address, newMember);
             }
-            notifyListeners(from, address, newMember, oldMember);
+            if (this.view != null) {
+                this.view.promote(this.members);
+            }
+            notifyListeners(from, reporter, address, newMember, oldMember);
+            if (evicted != null) {
+                notifyListeners(null, evicted.getKey(), null, evicted.getValue());
+            }
         }
         return newMember;
     }
 
-    private void handleEvents(MemberAddress from, DataInput input) {
+    private void forget(MemberAddress address) {
+        removeAndCancel(address);
+        Member oldMember = this.members.remove(address);
+        this.remoteState.remove(address);
+        notifyListeners(null, address, null, oldMember);
+    }
+
+    private int handleEvents(MemberAddress from, DataInput input) {
+        int entries = 0;
         try {
             byte senderGeneration = input.readByte();
             byte senderService = input.readByte();
@@ -374,7 +818,7 @@ public class Gossiper {
                     senderGeneration,
                     senderService,
                     senderServicePort);
-            updateMember(null, from, m -> m == null ? senderMember : m.merge(senderMember));
+            updateMember(null, from, from, m -> m == null ? senderMember : m.merge(senderMember));
 
             MemberState myState = MemberState.values()[input.readByte()];
             byte myGeneration = input.readByte();
@@ -409,20 +853,123 @@ public class Gossiper {
                         return null;
                     }
                 });
+                entries++;
             }
         } catch (IOException ex) {
             // this is fine - just means we're done with handling events
         }
+        return entries;
+    }
+
+    private int handleState(MemberAddress from, DataInput input) {
+        int entries = 0;
+        try {
+            // This is an infinte loop that will be broken when we hit an exception,
+            // because DataInput doesn't let us see whether we're at the end
+            //noinspection InfiniteLoopStatement
+            while (true) {
+                MemberAddress owner = input.readByte() == 0 ? from : parseAddress(input);
+                long version = input.readLong();
+                String key = input.readUTF();
+                String value = input.readBoolean() ? input.readUTF() : null;
+                updateState(from, owner, new StateEntry(key, value, version));
+                entries++;
+            }
+        } catch (IOException ex) {
+            // this is fine - just means we're done with handling state
+        }
+        return entries;
+    }
+
+    private int handleStateDigest(MemberAddress address, DataInput input) throws IOException {
+        int theirs = input.readInt();
+        Map<MemberAddress, Integer> digest = new HashMap<>();
+        try {
+            //noinspection InfiniteLoopStatement
+            while (true) {
+                MemberAddress owner = parseAddress(input);
+                digest.put(owner, input.readInt());
+            }
+        } catch (IOException ex) {
+            // this is fine - just means we're at the end of the digest
+        }
+
+        int mine = StateEntry.checksum(this.localState);
+        Map<MemberAddress, Integer> checksums = new HashMap<>();
+        for (Map.Entry<MemberAddress, Map<String, StateEntry>> owner : this.remoteState.entrySet()) {
+            checksums.put(owner.getKey(), StateEntry.checksum(owner.getValue()));
+        }
+        // anything that doesn't match is worth sending, merging will sort out who was behind
+        sendState(address, entry -> entry.getKey() == null
+                ? theirs != mine
+                : digest.getOrDefault(entry.getKey(), 0).intValue() != checksums.get(entry.getKey()));
+
+        // We only send digests once we have some state, so a node that has just joined would never ask
+        // for what it's missing. It asks now instead, and since nobody answers a digest with a digest
+        // this can't bounce back and forth.
+        if (!hasState() && digest.values().stream().anyMatch(checksum -> checksum != 0)) {
+            sendStateDigest(address);
+        }
+        return digest.size();
+    }
+
+    private void updateState(MemberAddress from, MemberAddress owner, StateEntry entry) {
+        if (!this.members.containsKey(owner)) {
+            return; // we'll pick it up again once we know who they are
+        }
+        Map<String, StateEntry> entries = this.remoteState.computeIfAbsent(owner, a -> new HashMap<>());
+        StateEntry oldEntry = entries.get(entry.key);
+        if (entry.isLaterThan(oldEntry)) {
+            entries.put(entry.key, entry);
+            String oldValue = oldEntry == null ? null : oldEntry.value;
+            if (!Objects.equals(oldValue, entry.value)) {
+                notifyStateListeners(from, owner, entry.key, entry.value, oldValue);
+            }
+        }
+    }
+
+    private void notifyStateListeners(MemberAddress from, MemberAddress address, String key, String newValue, String oldValue) {
+        for (Listener listener : listeners.values()) {
+            listener.acceptState(from, address, key, newValue, oldValue);
+        }
     }
 
     private void notifyListeners(MemberAddress from, MemberAddress address, Member newState, Member oldState) {
+        notifyListeners(from, from, address, newState, oldState);
+    }
+
+    private void notifyListeners(MemberAddress from, MemberAddress reporter, MemberAddress address, Member newState, Member oldState) {
+        MemberTransitionEvent event = new MemberTransitionEvent();
+        if (event.shouldCommit()) {
+            event.member = address.toString();
+            event.reporter = reporter == null ? "" : reporter.toString();
+            event.oldState = oldState == null ? "" : oldState.state.name();
+            event.newState = newState == null ? "" : newState.state.name();
+            event.oldGeneration = oldState == null ? 0 : oldState.generation;
+            event.newGeneration = newState == null ? 0 : newState.generation;
+            event.commit();
+        }
         for (Listener listener : listeners.values()) {
             listener.accept(from, address, newState, oldState);
         }
     }
 
+    // the new listener is told about every live member we already know of, and then about their state, as if
+    // they had just joined and set it
     public void addListener(Object key, Listener listener) {
-        this.executor.execute(loggingExceptions(() -> this.listeners.put(key, listener)));
+        this.executor.execute(loggingExceptions(() -> {
+            this.listeners.put(key, listener);
+            for (Map.Entry<MemberAddress, Member> member : this.members.entrySet()) {
+                listener.accept(null, member.getKey(), member.getValue(), null);
+            }
+            for (Map.Entry<MemberAddress, Map<String, StateEntry>> owner : this.remoteState.entrySet()) {
+                for (StateEntry entry : owner.getValue().values()) {
+                    if (entry.value != null) {
+                        listener.acceptState(null, owner.getKey(), entry.key, entry.value, null);
+                    }
+                }
+            }
+        }));
     }
 
     public void removeListener(Object key) {
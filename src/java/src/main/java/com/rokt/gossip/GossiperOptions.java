@@ -8,6 +8,24 @@ public class GossiperOptions {
     private int deathTimeoutMs = 60000;
     private int fanoutFactor = 3;
     private int numberOfIndirectEndPoints = 3;
+    private int inboundQueueCapacity = 1024;
+    private InboundOverflowPolicy inboundOverflowPolicy = InboundOverflowPolicy.DROP_OLDEST;
+    private boolean stateGossip = false;
+    private int stateBytesPerMessage = 256;
+    private int stateRetransmits = 6;
+    private boolean partialView = false;
+    private int activeViewSize = 5;
+    private int passiveViewSize = 30;
+    private int shuffleIntervalMs = 10000;
+    private boolean adaptive = false;
+    private int minFanoutFactor = 1;
+    private int maxFanoutFactor = 8;
+    private int maxProtocolPeriodMs = 10000;
+    private int targetDetectionTimeMs = 5000;
+    private int maxBytesPerSecond = 65536;
+    private int tombstoneCapacity = 1024;
+    private int tombstoneRetransmits = 10;
+    private String captureFile = null;
 
     public int getProtocolPeriodMs() { return protocolPeriodMs; }
     public int getPingTimeoutMs() { return pingTimeoutMs; }
@@ -15,6 +33,24 @@ public class GossiperOptions {
     public int getDeathTimeoutMs() { return deathTimeoutMs; }
     public int getFanoutFactor() { return fanoutFactor; }
     public int getNumberOfIndirectEndPoints() { return numberOfIndirectEndPoints; }
+    public int getInboundQueueCapacity() { return inboundQueueCapacity; }
+    public InboundOverflowPolicy getInboundOverflowPolicy() { return inboundOverflowPolicy; }
+    public boolean isStateGossip() { return stateGossip; }
+    public int getStateBytesPerMessage() { return stateBytesPerMessage; }
+    public int getStateRetransmits() { return stateRetransmits; }
+    public boolean isPartialView() { return partialView; }
+    public int getActiveViewSize() { return activeViewSize; }
+    public int getPassiveViewSize() { return passiveViewSize; }
+    public int getShuffleIntervalMs() { return shuffleIntervalMs; }
+    public boolean isAdaptive() { return adaptive; }
+    public int getMinFanoutFactor() { return minFanoutFactor; }
+    public int getMaxFanoutFactor() { return maxFanoutFactor; }
+    public int getMaxProtocolPeriodMs() { return maxProtocolPeriodMs; }
+    public int getTargetDetectionTimeMs() { return targetDetectionTimeMs; }
+    public int getMaxBytesPerSecond() { return maxBytesPerSecond; }
+    public int getTombstoneCapacity() { return tombstoneCapacity; }
+    public int getTombstoneRetransmits() { return tombstoneRetransmits; }
+    public String getCaptureFile() { return captureFile; }
 
     public void setProtocolPeriodMs(int v) { protocolPeriodMs = v; }
     public void setPingTimeoutMs(int v) { pingTimeoutMs = v; }
@@ -22,4 +58,22 @@ public class GossiperOptions {
     public void setDeathTimeoutMs(int v) { deathTimeoutMs = v; }
     public void setFanoutFactor(int v) { fanoutFactor = v; }
     public void setNumberOfIndirectEndPoints(int v) { numberOfIndirectEndPoints = v; }
+    public void setInboundQueueCapacity(int v) { inboundQueueCapacity = v; }
+    public void setInboundOverflowPolicy(InboundOverflowPolicy v) { inboundOverflowPolicy = v; }
+    public void setStateGossip(boolean v) { stateGossip = v; }
+    public void setStateBytesPerMessage(int v) { stateBytesPerMessage = v; }
+    public void setStateRetransmits(int v) { stateRetransmits = v; }
+    public void setPartialView(boolean v) { partialView = v; }
+    public void setActiveViewSize(int v) { activeViewSize = v; }
+    public void setPassiveViewSize(int v) { passiveViewSize = v; }
+    public void setShuffleIntervalMs(int v) { shuffleIntervalMs = v; }
+    public void setAdaptive(boolean v) { adaptive = v; }
+    public void setMinFanoutFactor(int v) { minFanoutFactor = v; }
+    public void setMaxFanoutFactor(int v) { maxFanoutFactor = v; }
+    public void setMaxProtocolPeriodMs(int v) { maxProtocolPeriodMs = v; }
+    public void setTargetDetectionTimeMs(int v) { targetDetectionTimeMs = v; }
+    public void setMaxBytesPerSecond(int v) { maxBytesPerSecond = v; }
+    public void setTombstoneCapacity(int v) { tombstoneCapacity = v; }
+    public void setTombstoneRetransmits(int v) { tombstoneRetransmits = v; }
+    public void setCaptureFile(String v) { captureFile = v; }
 }
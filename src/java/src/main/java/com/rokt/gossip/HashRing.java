@@ -0,0 +1,119 @@
+package com.gossipmesh.core;
+
+import java.util.Arrays;
+
+// An immutable consistent-hash ring. Each member owns the keys from the previous point on the ring up to
+// and including each of its own points. Adding or removing a member merges its points into a copy of the
+// (already sorted) arrays, rather than sorting the whole ring again.
+public class HashRing {
+    static final HashRing EMPTY = new HashRing(0, new long[0], new MemberAddress[0]);
+
+    private final long version;
+    private final long[] points;
+    private final MemberAddress[] owners;
+
+    private HashRing(long version, long[] points, MemberAddress[] owners) {
+        this.version = version;
+        this.points = points;
+        this.owners = owners;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public boolean isEmpty() {
+        return points.length == 0;
+    }
+
+    public MemberAddress get(byte[] key) {
+        return get(hash(key));
+    }
+
+    public MemberAddress get(long hash) {
+        if (points.length == 0) {
+            return null;
+        }
+        return owners[successor(hash)];
+    }
+
+    // index of the first point at or after `hash`, wrapping around to the start of the ring
+    int successor(long hash) {
+        int index = Arrays.binarySearch(points, hash);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return index == points.length ? 0 : index;
+    }
+
+    // the point before the one at `hash`, wrapping around to the end of the ring
+    long predecessor(long hash) {
+        int index = successor(hash);
+        return points[index == 0 ? points.length - 1 : index - 1];
+    }
+
+    HashRing with(MemberAddress member, long[] memberPoints) {
+        long[] newPoints = new long[points.length + memberPoints.length];
+        MemberAddress[] newOwners = new MemberAddress[newPoints.length];
+        int i = 0, j = 0, k = 0;
+        while (i < points.length || j < memberPoints.length) {
+            if (j == memberPoints.length || (i < points.length && points[i] <= memberPoints[j])) {
+                newPoints[k] = points[i];
+                newOwners[k++] = owners[i++];
+            } else {
+                newPoints[k] = memberPoints[j++];
+                newOwners[k++] = member;
+            }
+        }
+        return new HashRing(version + 1, newPoints, newOwners);
+    }
+
+    HashRing without(MemberAddress member) {
+        long[] newPoints = new long[points.length];
+        MemberAddress[] newOwners = new MemberAddress[points.length];
+        int k = 0;
+        for (int i = 0; i < points.length; ++i) {
+            if (!owners[i].equals(member)) {
+                newPoints[k] = points[i];
+                newOwners[k++] = owners[i];
+            }
+        }
+        return new HashRing(version + 1, Arrays.copyOf(newPoints, k), Arrays.copyOf(newOwners, k));
+    }
+
+    // the (sorted) points that `member` owns on the ring
+    static long[] points(MemberAddress member, int virtualNodes) {
+        byte[] address = member.address.getAddress();
+        long seed = ((address[0] & 0xFFL) << 40)
+                | ((address[1] & 0xFFL) << 32)
+                | ((address[2] & 0xFFL) << 24)
+                | ((address[3] & 0xFFL) << 16)
+                | (member.port & 0xFFFFL);
+        long[] points = new long[virtualNodes];
+        for (int i = 0; i < virtualNodes; ++i) {
+            points[i] = mix(seed * 0x9E3779B97F4A7C15L + i);
+        }
+        Arrays.sort(points);
+        return points;
+    }
+
+    // FNV-1a, followed by a finalizer so that similar keys end up far apart on the ring
+    public static long hash(byte[] key) {
+        long hash = 0xCBF29CE484222325L;
+        for (byte b : key) {
+            hash ^= (b & 0xFF);
+            hash *= 0x100000001B3L;
+        }
+        return mix(hash);
+    }
+
+    // the finalizer from MurmurHash3
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,6 @@
+package com.gossipmesh.core;
+
+public enum InboundOverflowPolicy {
+    DROP_NEWEST,
+    DROP_OLDEST
+}
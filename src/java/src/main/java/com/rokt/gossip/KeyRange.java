@@ -0,0 +1,28 @@
+package com.gossipmesh.core;
+
+// The hashes after `start`, up to and including `end`. If `start` isn't less than `end` then the
+// range wraps around the end of the ring.
+public class KeyRange {
+    public final long start;
+    public final long end;
+    public final MemberAddress from; // null if nobody owned the range before
+    public final MemberAddress to; // null if nobody owns the range now
+
+    KeyRange(long start, long end, MemberAddress from, MemberAddress to) {
+        this.start = start;
+        this.end = end;
+        this.from = from;
+        this.to = to;
+    }
+
+    public boolean contains(long hash) {
+        return start < end
+                ? start < hash && hash <= end
+                : start < hash || hash <= end;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("(%s, %s]{%s -> %s}", start, end, from, to);
+    }
+}
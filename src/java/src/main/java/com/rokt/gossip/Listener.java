@@ -2,4 +2,7 @@ package com.gossipmesh.core;
 
 public interface Listener {
     void accept(MemberAddress from, MemberAddress address, Member newMember, Member oldMember);
+
+    default void acceptState(MemberAddress from, MemberAddress address, String key, String newValue, String oldValue) {
+    }
 }
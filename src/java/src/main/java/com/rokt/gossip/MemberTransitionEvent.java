@@ -0,0 +1,28 @@
+package com.gossipmesh.core;
+
+import jdk.jfr.*;
+
+@Name("com.gossipmesh.MemberTransition")
+@Label("Member Transition")
+@Category("Gossip Mesh")
+@StackTrace(false)
+class MemberTransitionEvent extends Event {
+    @Label("Member")
+    String member;
+
+    @Label("Reported By")
+    @Description("The member whose gossip caused the transition (which may be the member itself), or empty if we decided it ourselves")
+    String reporter;
+
+    @Label("Old State")
+    String oldState;
+
+    @Label("New State")
+    String newState;
+
+    @Label("Old Generation")
+    byte oldGeneration;
+
+    @Label("New Generation")
+    byte newGeneration;
+}
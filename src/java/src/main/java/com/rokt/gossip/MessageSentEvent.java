@@ -0,0 +1,22 @@
+package com.gossipmesh.core;
+
+import jdk.jfr.*;
+
+@Name("com.gossipmesh.MessageSent")
+@Label("Message Sent")
+@Category("Gossip Mesh")
+@StackTrace(false)
+class MessageSentEvent extends Event {
+    @Label("Type")
+    byte type;
+
+    @Label("Peer")
+    String peer;
+
+    @Label("Entries")
+    int entries;
+
+    @Label("Size")
+    @DataAmount
+    int bytes;
+}
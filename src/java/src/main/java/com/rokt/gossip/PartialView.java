@@ -0,0 +1,194 @@
+package com.gossipmesh.core;
+
+import java.util.*;
+
+// Keeps a small active view of members which we probe, and a larger passive view which is used to
+// repair the active view when its members die. Anything outside of the two views is forgotten, which
+// keeps the cost of a node constant no matter how large the cluster gets.
+//
+// Once both views are full, members we hear about are only kept as candidates, and one of them is swapped
+// into the passive view each time we shuffle. Swapping on every mention would churn the views (and every
+// listener) as fast as gossip arrives, because the member we evicted would be mentioned again right away.
+class PartialView {
+    private final int activeSize;
+    private final int passiveSize;
+    private final Set<MemberAddress> active;
+    private final Set<MemberAddress> passive;
+    private final Map<MemberAddress, Member> candidates;
+    // what we last knew about members we evicted, so stale gossip about them can't resurrect an old generation
+    private final LinkedHashMap<MemberAddress, Member> forgotten;
+    private final Random random;
+
+    static class Swap {
+        final MemberAddress evicted;
+        final MemberAddress address;
+        final Member member;
+
+        Swap(MemberAddress evicted, MemberAddress address, Member member) {
+            this.evicted = evicted;
+            this.address = address;
+            this.member = member;
+        }
+    }
+
+    PartialView(int activeSize, int passiveSize) {
+        this(activeSize, passiveSize, new Random());
+    }
+
+    PartialView(int activeSize, int passiveSize, Random random) {
+        this.activeSize = activeSize;
+        this.passiveSize = passiveSize;
+        this.active = new HashSet<>();
+        this.passive = new HashSet<>();
+        this.candidates = new HashMap<>();
+        this.forgotten = new LinkedHashMap<MemberAddress, Member>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<MemberAddress, Member> eldest) {
+                return size() > passiveSize;
+            }
+        };
+        this.random = random;
+    }
+
+    boolean isActive(MemberAddress address) {
+        return this.active.contains(address);
+    }
+
+    boolean isPassive(MemberAddress address) {
+        return this.passive.contains(address);
+    }
+
+    Member forgotten(MemberAddress address) {
+        return this.forgotten.get(address);
+    }
+
+    private static boolean isAlive(Member member) {
+        return member != null && (member.state == MemberState.ALIVE || member.state == MemberState.SUSPICIOUS);
+    }
+
+    // returns false if there's no room for `address` in our views, in which case it's kept as a candidate
+    // for the next shuffle instead
+    boolean update(MemberAddress address, Member member) {
+        if (!isAlive(member)) {
+            this.active.remove(address);
+            this.passive.remove(address);
+            this.candidates.remove(address);
+            return true;
+        } else if (this.active.contains(address) || this.passive.contains(address)) {
+            return true;
+        } else if (this.active.size() < this.activeSize) {
+            add(this.active, address);
+            return true;
+        } else if (this.passive.size() < this.passiveSize) {
+            add(this.passive, address);
+            return true;
+        }
+
+        if (this.candidates.containsKey(address)) {
+            this.candidates.merge(address, member, Member::merge);
+        } else if (this.candidates.size() < this.passiveSize) {
+            this.candidates.put(address, member);
+        }
+        return false;
+    }
+
+    private void add(Set<MemberAddress> view, MemberAddress address) {
+        view.add(address);
+        this.candidates.remove(address);
+        this.forgotten.remove(address);
+    }
+
+    // Picks one of the candidates we've heard about since the last shuffle and makes room for it in the
+    // passive view. Returns null if there was nothing worth swapping.
+    Swap shuffle(Map<MemberAddress, Member> members) {
+        List<MemberAddress> heard = new ArrayList<>(this.candidates.keySet());
+        if (heard.isEmpty()) {
+            return null;
+        }
+        MemberAddress address = heard.get(this.random.nextInt(heard.size()));
+        Member member = this.candidates.get(address);
+        this.candidates.clear();
+        if (this.passive.size() < this.passiveSize) {
+            add(this.passive, address);
+            return new Swap(null, address, member);
+        }
+
+        // The newcomer competes for its place on the same terms as the members it would replace
+        Map<Byte, Integer> providers = providers(members);
+        List<MemberAddress> evictable = evictable(providers, members);
+        if (providers.containsKey(member.serviceByte) || evictable.isEmpty()) {
+            evictable.add(address);
+        }
+        MemberAddress evicted = evictable.get(this.random.nextInt(evictable.size()));
+        if (evicted.equals(address)) {
+            return null;
+        }
+        evict(evicted, members);
+        add(this.passive, address);
+        return new Swap(evicted, address, member);
+    }
+
+    // Makes room in the passive view for a member that we can't turn away, like a dead member that has
+    // refuted its death: we'd otherwise keep it as DEAD while it answers our probes. Returns the member
+    // that had to be evicted for it, if any.
+    MemberAddress admit(MemberAddress address, Map<MemberAddress, Member> members) {
+        MemberAddress evicted = null;
+        if (this.passive.size() >= this.passiveSize && !this.passive.isEmpty()) {
+            List<MemberAddress> evictable = evictable(providers(members), members);
+            if (evictable.isEmpty()) {
+                evictable.addAll(this.passive);
+            }
+            evicted = evictable.get(this.random.nextInt(evictable.size()));
+            evict(evicted, members);
+        }
+        add(this.passive, address);
+        return evicted;
+    }
+
+    private static Map<Byte, Integer> providers(Map<MemberAddress, Member> members) {
+        Map<Byte, Integer> providers = new HashMap<>();
+        for (Member m : members.values()) {
+            if (isAlive(m)) {
+                providers.merge(m.serviceByte, 1, Integer::sum);
+            }
+        }
+        return providers;
+    }
+
+    // only members whose service someone else provides too, so that every service we know about stays
+    // discoverable
+    private List<MemberAddress> evictable(Map<Byte, Integer> providers, Map<MemberAddress, Member> members) {
+        List<MemberAddress> evictable = new ArrayList<>();
+        for (MemberAddress candidate : this.passive) {
+            if (providers.getOrDefault(members.get(candidate).serviceByte, 0) > 1) {
+                evictable.add(candidate);
+            }
+        }
+        return evictable;
+    }
+
+    private void evict(MemberAddress address, Map<MemberAddress, Member> members) {
+        this.passive.remove(address);
+        this.forgotten.put(address, members.get(address));
+    }
+
+    void promote(Map<MemberAddress, Member> members) {
+        if (this.active.size() >= this.activeSize) {
+            return;
+        }
+        List<MemberAddress> candidates = new ArrayList<>();
+        for (MemberAddress candidate : this.passive) {
+            if (isAlive(members.get(candidate))) {
+                candidates.add(candidate);
+            }
+        }
+        Collections.shuffle(candidates, this.random);
+        for (MemberAddress candidate : candidates) {
+            if (this.active.size() >= this.activeSize) {
+                break;
+            }
+            this.passive.remove(candidate);
+            this.active.add(candidate);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.gossipmesh.core;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+
+// Works out the protocol period and fanout for the next protocol period, based on the size of the
+// cluster and on what we've measured during the last one. Everything scales with ln(n), so small
+// clusters gossip less than the fixed settings and large ones more: the fanout between the minimum and
+// maximum fanout (the configured fanout is only the starting point), and the indirect end points and
+// state retransmits between 1 and their configured values. The protocol period stretches from the
+// configured one up to the maximum protocol period.
+class ProtocolTuner {
+    private static final double SMOOTHING = 0.2;
+
+    private final GossiperOptions options;
+    private final OperatingSystemMXBean os;
+
+    private int pingsSent;
+    private int acksReceived;
+    private long bytesSent; // only what we sent on our own account, which doesn't grow with the period
+    private double lossRate;
+    private double bytesPerPeriod;
+
+    private int periodMs;
+    private int fanoutFactor;
+    private int numberOfIndirectEndPoints;
+    private int stateRetransmits;
+
+    ProtocolTuner(GossiperOptions options) {
+        if (options.getTargetDetectionTimeMs() <= options.getPingTimeoutMs() + options.getIndirectPingTimeoutMs()) {
+            throw new IllegalArgumentException("The target detection time has to be longer than the ping timeouts");
+        }
+        this.options = options;
+        this.os = ManagementFactory.getOperatingSystemMXBean();
+        this.periodMs = options.getProtocolPeriodMs();
+        this.fanoutFactor = options.getFanoutFactor();
+        this.numberOfIndirectEndPoints = options.getNumberOfIndirectEndPoints();
+        this.stateRetransmits = options.getStateRetransmits();
+    }
+
+    void pingSent() {
+        this.pingsSent++;
+    }
+
+    void ackReceived() {
+        this.acksReceived++;
+    }
+
+    void bytesSent(int bytes) {
+        this.bytesSent += bytes;
+    }
+
+    void retune(int clusterSize) {
+        if (this.pingsSent > 0) {
+            double loss = Math.max(0.0, 1.0 - (double) this.acksReceived / this.pingsSent);
+            this.lossRate += SMOOTHING * (loss - this.lossRate);
+        }
+        this.bytesPerPeriod += SMOOTHING * (this.bytesSent - this.bytesPerPeriod);
+        this.pingsSent = 0;
+        this.acksReceived = 0;
+        this.bytesSent = 0;
+
+        int scale = (int) Math.ceil(Math.log(Math.max(1, clusterSize)));
+        int minFanout = Math.max(1, options.getMinFanoutFactor());
+        this.fanoutFactor = clamp(scale, minFanout, Math.max(minFanout, options.getMaxFanoutFactor()));
+        this.numberOfIndirectEndPoints = clamp(scale, 1, Math.max(1, options.getNumberOfIndirectEndPoints()));
+        this.stateRetransmits = clamp(scale, 1, Math.max(1, options.getStateRetransmits()));
+
+        // back off when packets are going missing or the machine is overloaded...
+        double load = os.getSystemLoadAverage() / os.getAvailableProcessors(); // negative if unavailable
+        double period = options.getProtocolPeriodMs() * (1 + 2 * this.lossRate) * Math.max(1.0, load);
+
+        // ...but not so far that we'd miss our detection target. Each period a member gets pinged by
+        // someone with a probability of about 1 - e^-fanout, then it has the ping timeouts to respond.
+        double detectionMs = options.getTargetDetectionTimeMs() - options.getPingTimeoutMs() - options.getIndirectPingTimeoutMs();
+        period = Math.min(period, detectionMs * (1 - Math.exp(-this.fanoutFactor)));
+
+        // the bandwidth ceiling wins over the detection target...
+        period = Math.max(period, this.bytesPerPeriod * 1000 / options.getMaxBytesPerSecond());
+
+        // ...but we never stop probing altogether
+        period = Math.min(period, options.getMaxProtocolPeriodMs());
+        this.periodMs = (int) Math.max(1, Math.round(period));
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(value, max));
+    }
+
+    int getPeriodMs() { return periodMs; }
+    int getFanoutFactor() { return fanoutFactor; }
+    int getNumberOfIndirectEndPoints() { return numberOfIndirectEndPoints; }
+    int getStateRetransmits() { return stateRetransmits; }
+}
@@ -0,0 +1,7 @@
+package com.gossipmesh.core;
+
+import java.util.List;
+
+public interface RingListener {
+    void accept(HashRing ring, List<KeyRange> moved);
+}
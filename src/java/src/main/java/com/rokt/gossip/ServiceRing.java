@@ -0,0 +1,76 @@
+package com.gossipmesh.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Keeps a consistent-hash ring of the live members providing a service. Register it with
+// `Gossiper.addListener`, and it will be updated on the gossip thread as members come and go. Lookups
+// read the latest published ring, so they never block.
+public class ServiceRing implements Listener {
+    private final byte serviceByte;
+    private final int virtualNodes;
+    private final Map<Object, RingListener> listeners;
+    private volatile HashRing ring;
+
+    public ServiceRing(int serviceByte, int virtualNodes) {
+        this.serviceByte = (byte) serviceByte;
+        this.virtualNodes = virtualNodes;
+        this.listeners = new ConcurrentHashMap<>();
+        this.ring = HashRing.EMPTY;
+    }
+
+    public HashRing getRing() {
+        return ring;
+    }
+
+    public MemberAddress get(byte[] key) {
+        return ring.get(key);
+    }
+
+    public MemberAddress get(long hash) {
+        return ring.get(hash);
+    }
+
+    private boolean provides(Member member) {
+        return member != null
+                && member.serviceByte == serviceByte
+                && (member.state == MemberState.ALIVE || member.state == MemberState.SUSPICIOUS);
+    }
+
+    @Override
+    public void accept(MemberAddress from, MemberAddress address, Member newMember, Member oldMember) {
+        boolean wasProviding = provides(oldMember);
+        boolean isProviding = provides(newMember);
+        if (wasProviding == isProviding) {
+            return;
+        }
+
+        HashRing before = this.ring;
+        long[] points = HashRing.points(address, virtualNodes);
+        HashRing after = isProviding ? before.with(address, points) : before.without(address);
+        this.ring = after;
+
+        // only the ranges ending at this member's points can have changed hands
+        List<KeyRange> moved = new ArrayList<>(points.length);
+        for (long point : points) {
+            if (isProviding) {
+                moved.add(new KeyRange(after.predecessor(point), point, before.get(point), address));
+            } else {
+                moved.add(new KeyRange(before.predecessor(point), point, address, after.get(point)));
+            }
+        }
+        for (RingListener listener : listeners.values()) {
+            listener.accept(after, moved);
+        }
+    }
+
+    public void addListener(Object key, RingListener listener) {
+        this.listeners.put(key, listener);
+    }
+
+    public void removeListener(Object key) {
+        this.listeners.remove(key);
+    }
+}
@@ -0,0 +1,47 @@
+package com.gossipmesh.core;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+class StateEntry {
+    final String key;
+    final String value; // null when the key has been removed
+    final long version;
+    long timesMentioned;
+
+    StateEntry(String key, String value, long version) {
+        this.key = key;
+        this.value = value;
+        this.version = version;
+        this.timesMentioned = 0;
+    }
+
+    // last writer wins. Only the owner ever writes its entries, and it seeds versions from the clock, so
+    // the version alone orders them, even across restarts that reset the owner's generation
+    boolean isLaterThan(StateEntry other) {
+        return other == null || this.version > other.version;
+    }
+
+    // a cheap summary of a member's state, so that digests only need four bytes per member
+    static int checksum(Map<String, StateEntry> entries) {
+        if (entries == null || entries.isEmpty()) {
+            return 0;
+        }
+        CRC32 crc = new CRC32();
+        for (StateEntry entry : new TreeMap<>(entries).values()) {
+            crc.update(entry.key.getBytes(StandardCharsets.UTF_8));
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                crc.update((int) (entry.version >>> shift));
+            }
+            crc.update(entry.value == null ? 0 : 1);
+        }
+        return (int) crc.getValue();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s=%s[%s]", key, value, version);
+    }
+}
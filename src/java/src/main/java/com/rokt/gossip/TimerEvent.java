@@ -0,0 +1,15 @@
+package com.gossipmesh.core;
+
+import jdk.jfr.*;
+
+@Name("com.gossipmesh.Timer")
+@Label("Timer Fired")
+@Category("Gossip Mesh")
+@StackTrace(false)
+class TimerEvent extends Event {
+    @Label("Timer")
+    String timer;
+
+    @Label("Member")
+    String member;
+}
@@ -0,0 +1,98 @@
+package com.gossipmesh.core;
+
+import java.util.*;
+
+// Members that are DEAD or LEFT are kept here, rather than with the live members, until they expire. We
+// still need them to stop stale gossip from bringing them back to life, but they don't need a scheduled
+// task each, and they only get disseminated a limited number of times.
+class TombstoneStore {
+    private final int capacity;
+    private final int retransmits;
+    // expiry times come from System.nanoTime, so they only ever increase and insertion order is also expiry order
+    private final LinkedHashMap<MemberAddress, Tombstone> tombstones;
+
+    private static class Tombstone {
+        final byte state;
+        final byte generation;
+        final long expiresAt; // System.nanoTime
+        int timesMentioned;
+
+        Tombstone(Member member, long expiresAt) {
+            this.state = (byte) member.state.ordinal();
+            this.generation = member.generation;
+            this.expiresAt = expiresAt;
+            this.timesMentioned = 0;
+        }
+
+        // service details aren't gossiped for dead members, so we don't keep them either
+        Member toMember() {
+            Member member = new Member(MemberState.values()[state], generation, (byte) 0, (short) 0);
+            member.timesMentioned = timesMentioned;
+            return member;
+        }
+    }
+
+    TombstoneStore(int capacity, int retransmits) {
+        this.capacity = capacity;
+        this.retransmits = retransmits;
+        this.tombstones = new LinkedHashMap<>();
+    }
+
+    Member get(MemberAddress address) {
+        Tombstone tombstone = tombstones.get(address);
+        return tombstone == null ? null : tombstone.toMember();
+    }
+
+    // returns the oldest tombstone if it had to be evicted to make room
+    Map.Entry<MemberAddress, Member> put(MemberAddress address, Member member, long expiresAt) {
+        tombstones.remove(address);
+        tombstones.put(address, new Tombstone(member, expiresAt));
+        if (tombstones.size() > capacity) {
+            Iterator<Map.Entry<MemberAddress, Tombstone>> it = tombstones.entrySet().iterator();
+            Map.Entry<MemberAddress, Tombstone> eldest = it.next();
+            it.remove();
+            return new AbstractMap.SimpleImmutableEntry<>(eldest.getKey(), eldest.getValue().toMember());
+        }
+        return null;
+    }
+
+    void remove(MemberAddress address) {
+        tombstones.remove(address);
+    }
+
+    List<Map.Entry<MemberAddress, Member>> expire(long now) {
+        List<Map.Entry<MemberAddress, Member>> expired = new ArrayList<>();
+        Iterator<Map.Entry<MemberAddress, Tombstone>> it = tombstones.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<MemberAddress, Tombstone> entry = it.next();
+            if (entry.getValue().expiresAt - now > 0) {
+                break;
+            }
+            it.remove();
+            expired.add(new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), entry.getValue().toMember()));
+        }
+        return expired;
+    }
+
+    List<MemberAddress> addresses() {
+        return new ArrayList<>(tombstones.keySet());
+    }
+
+    // the tombstones that still need to be gossiped about
+    List<Map.Entry<MemberAddress, Member>> disseminating() {
+        List<Map.Entry<MemberAddress, Member>> result = new ArrayList<>();
+        for (Map.Entry<MemberAddress, Tombstone> entry : tombstones.entrySet()) {
+            if (entry.getValue().timesMentioned < retransmits) {
+                result.add(new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), entry.getValue().toMember()));
+            }
+        }
+        return result;
+    }
+
+    void mentioned(MemberAddress address) {
+        Tombstone tombstone = tombstones.get(address);
+        if (tombstone != null) {
+            tombstone.timesMentioned++;
+        }
+    }
+}
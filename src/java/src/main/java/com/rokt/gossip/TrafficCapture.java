@@ -0,0 +1,114 @@
+package com.gossipmesh.core;
+
+import java.io.*;
+import java.net.Inet4Address;
+import java.util.ArrayList;
+import java.util.List;
+
+// Appends inbound datagrams to a file so that they can be fed back through a Gossiper later on.
+//
+// The file starts with a magic number and a format version, followed by a record for each datagram:
+//
+//     timestamp (8 bytes, nanoseconds since the epoch) | IP (4 bytes) | port (2 bytes) | length (2 bytes) | data
+//
+// Capturing to an existing file appends to it, once we've checked that it really is a capture.
+class TrafficCapture implements Closeable {
+    private static final int MAGIC = 0x474D4350; // "GMCP"
+    private static final byte VERSION = 1;
+    private static final int HEADER_LENGTH = 5;
+    private static final int RECORD_HEADER_LENGTH = 16;
+
+    private final DataOutputStream output;
+    private final long startMillis;
+    private final long startNanos;
+
+    TrafficCapture(String file) throws IOException {
+        long length = new File(file).length();
+        boolean empty = length == 0;
+        if (!empty) {
+            // if the last process capturing to this file died part way through a record, then everything we
+            // appended after it would be misread, so we cut the partial record off first
+            long complete = scan(file, null);
+            if (complete < length) {
+                try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                    raf.setLength(complete);
+                }
+            }
+        }
+        this.output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+        this.startMillis = System.currentTimeMillis();
+        this.startNanos = System.nanoTime();
+        if (empty) {
+            output.writeInt(MAGIC);
+            output.write(VERSION);
+        }
+    }
+
+    void write(MemberAddress address, byte[] data) throws IOException {
+        output.writeLong(startMillis * 1_000_000 + (System.nanoTime() - startNanos));
+        output.write(address.address.getAddress());
+        output.writeShort(address.port);
+        output.writeShort(data.length);
+        output.write(data);
+    }
+
+    @Override
+    public void close() throws IOException {
+        output.close();
+    }
+
+    static class Record {
+        final long timestampNanos;
+        final MemberAddress address;
+        final byte[] data;
+
+        Record(long timestampNanos, MemberAddress address, byte[] data) {
+            this.timestampNanos = timestampNanos;
+            this.address = address;
+            this.data = data;
+        }
+    }
+
+    static List<Record> read(String file) throws IOException {
+        List<Record> records = new ArrayList<>();
+        scan(file, records);
+        return records;
+    }
+
+    // reads the records in a capture, adding them to `records` if it isn't null, and returns the length of
+    // the file up to the end of the last complete record
+    private static long scan(String file, List<Record> records) throws IOException {
+        long complete = HEADER_LENGTH;
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (input.readInt() != MAGIC) {
+                throw new IOException(file + " is not a traffic capture");
+            }
+            byte version = input.readByte();
+            if (version != VERSION) {
+                throw new IOException("Unknown traffic capture version: " + version);
+            }
+            try {
+                // This is an infinte loop that will be broken when we hit the end of the file. If the
+                // capturing process died part way through a record then we just lose that record.
+                //noinspection InfiniteLoopStatement
+                while (true) {
+                    long timestamp = input.readLong();
+                    byte[] addressBytes = new byte[4];
+                    input.readFully(addressBytes);
+                    MemberAddress address = new MemberAddress(
+                            (Inet4Address) Inet4Address.getByAddress(addressBytes),
+                            input.readShort());
+                    byte[] data = new byte[input.readUnsignedShort()];
+                    input.readFully(data);
+                    complete += RECORD_HEADER_LENGTH + data.length;
+                    if (records != null) {
+                        records.add(new Record(timestamp, address, data));
+                    }
+                }
+            } catch (EOFException ex) {
+                // this is fine - just means we're done with reading records
+            }
+        }
+        return complete;
+    }
+}
@@ -0,0 +1,118 @@
+package com.gossipmesh.core;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.SocketAddress;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+// Feeds a traffic capture through a Gossiper which never touches the network, and reports how quickly it
+// got through it, how much it allocated, and what membership it ended up with.
+//
+//     java -cp core.jar com.gossipmesh.core.TrafficReplay <capture file> [--realtime]
+public class TrafficReplay {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("usage: TrafficReplay <capture file> [--realtime]");
+            System.exit(1);
+        }
+        boolean realtime = args.length > 1 && args[1].equals("--realtime");
+        List<TrafficCapture.Record> records = TrafficCapture.read(args[0]);
+        if (records.isEmpty()) {
+            System.out.println("No messages captured");
+            return;
+        }
+
+        DiscardingSocket socket = new DiscardingSocket();
+        GossiperOptions options = new GossiperOptions();
+        options.setStateGossip(true); // so that captured state messages get handled too, the replies go nowhere
+        Gossiper gossiper = new Gossiper(socket, 0, 0, options);
+        Map<MemberAddress, Member> members = new HashMap<>();
+        gossiper.addListener(members, (from, address, newMember, oldMember) -> {
+            if (newMember == null) {
+                members.remove(address);
+            } else {
+                members.put(address, newMember);
+            }
+        });
+
+        long[] allocated = new long[1];
+        Runnable[] tasks = new Runnable[records.size()];
+        for (int i = 0; i < tasks.length; ++i) {
+            TrafficCapture.Record record = records.get(i);
+            tasks[i] = () -> {
+                long before = allocatedBytes();
+                gossiper.handleDatagram(record.address, record.data);
+                allocated[0] += allocatedBytes() - before;
+            };
+        }
+
+        long start = System.nanoTime();
+        ScheduledFuture<?> last;
+        if (realtime) {
+            long first = records.get(0).timestampNanos;
+            last = null;
+            for (int i = 0; i < tasks.length; ++i) {
+                last = gossiper.schedule(tasks[i], records.get(i).timestampNanos - first, TimeUnit.NANOSECONDS);
+            }
+        } else {
+            last = gossiper.schedule(() -> {
+                for (Runnable task : tasks) {
+                    task.run();
+                }
+            }, 0, TimeUnit.NANOSECONDS);
+        }
+        last.get(); // everything else ran on the gossip thread before this, including the listener
+        long elapsed = System.nanoTime() - start;
+        gossiper.stop(1, TimeUnit.SECONDS);
+
+        System.out.printf("Messages:     %d (%d bytes)%n", records.size(), records.stream().mapToLong(r -> r.data.length).sum());
+        System.out.printf("Elapsed:      %.3f ms%n", elapsed / 1e6);
+        System.out.printf("Throughput:   %.0f messages/sec%n", records.size() / (elapsed / 1e9));
+        if (allocatedBytes() >= 0) {
+            System.out.printf("Allocated:    %d bytes (%d bytes/message)%n", allocated[0], allocated[0] / records.size());
+        }
+        System.out.printf("Replies:      %d (%d bytes)%n", socket.packets, socket.bytes);
+        System.out.printf("Membership:   %s%n", countStates(members));
+    }
+
+    private static Map<MemberState, Integer> countStates(Map<MemberAddress, Member> members) {
+        Map<MemberState, Integer> states = new EnumMap<>(MemberState.class);
+        for (Member member : members.values()) {
+            states.merge(member.state, 1, Integer::sum);
+        }
+        return states;
+    }
+
+    // returns a negative number if the JVM can't tell us
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    // replies are counted rather than sent, so that replaying can't disturb a real cluster
+    private static class DiscardingSocket extends DatagramSocket {
+        long packets;
+        long bytes;
+
+        DiscardingSocket() throws IOException {
+            super((SocketAddress) null);
+        }
+
+        @Override
+        public void send(DatagramPacket packet) {
+            packets++;
+            bytes += packet.getLength();
+        }
+    }
+}